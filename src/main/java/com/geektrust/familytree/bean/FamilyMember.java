@@ -1,11 +1,10 @@
 package com.geektrust.familytree.bean;
 
+import com.geektrust.familytree.query.RelationshipExpression;
 import com.geektrust.familytree.util.CommonUtil;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * This class represents a member in the family. {@link FamilyMember} implements {@link Comparable} and the
@@ -55,6 +54,19 @@ public class FamilyMember implements Comparable<FamilyMember> {
      */
     private List<FamilyMember> children;
 
+    /*
+    Aggregates of the descendants of the member. These are maintained incrementally by the family tree as members are
+    added, and both spouses of a couple hold the same values.
+     */
+    private int maleDescendantCount;
+    private int femaleDescendantCount;
+    private int marriedDescendantCount;
+
+    /**
+     * Number of generations below this member. {@code 0} if the member has no children
+     */
+    private int generationDepth;
+
     /**
      * Creates a {@link FamilyMember}
      *
@@ -124,6 +136,71 @@ public class FamilyMember implements Comparable<FamilyMember> {
         this.children = children;
     }
 
+    /**
+     * @return total number of descendants of this member
+     */
+    public int getDescendantCount() {
+        return maleDescendantCount + femaleDescendantCount;
+    }
+
+    /**
+     * Returns the number of descendants in a given gender of this member
+     *
+     * @param gender gender of the descendants to be counted
+     * @return number of descendants
+     */
+    public int getDescendantCount(Gender gender) {
+        return Gender.MALE.equals(gender) ? maleDescendantCount: femaleDescendantCount;
+    }
+
+    /**
+     * @return number of descendants of this member who have a spouse
+     */
+    public int getMarriedDescendantCount() {
+        return marriedDescendantCount;
+    }
+
+    /**
+     * @return number of generations below this member
+     */
+    public int getGenerationDepth() {
+        return generationDepth;
+    }
+
+    /**
+     * Records a new descendant at a given distance from this member
+     *
+     * @param gender     gender of the new descendant
+     * @param generation generation of the new descendant relative to this member. {@code 1} for a child
+     */
+    void addDescendant(Gender gender, int generation) {
+        if (Gender.MALE.equals(gender)) {
+            maleDescendantCount++;
+        } else {
+            femaleDescendantCount++;
+        }
+        generationDepth = Math.max(generationDepth, generation);
+    }
+
+    /**
+     * Records that a descendant of this member got married
+     */
+    void addMarriedDescendant() {
+        marriedDescendantCount++;
+    }
+
+    /**
+     * Copies the descendant aggregates of a given member to this member. Used when a spouse joins the family.
+     *
+     * @param member member to copy the aggregates from
+     */
+    void copyDescendantAggregates(FamilyMember member) {
+        this.maleDescendantCount = member.maleDescendantCount;
+        this.femaleDescendantCount = member.femaleDescendantCount;
+        this.marriedDescendantCount = member.marriedDescendantCount;
+        this.generationDepth = member.generationDepth;
+    }
+
     /**
      * Compare two family members
      *
@@ -155,12 +232,7 @@ public class FamilyMember implements Comparable<FamilyMember> {
      * @return a {@link List} of {@link FamilyMember}s
      */
     public List<FamilyMember> getSiblings() {
-        if (this.mother != null) {
-            return this.mother.getChildren().stream().filter(child -> !child.getName().equals(this.name)).sorted()
-                    .collect(Collectors.toList());
-        } else {
-            return new ArrayList<>();
-        }
+        return Relationship.SIBLINGS.getExpression().evaluate(this);
     }
 
     /**
@@ -170,8 +242,7 @@ public class FamilyMember implements Comparable<FamilyMember> {
      * @return a {@link List} of {@link FamilyMember}s
      */
     public List<FamilyMember> getSiblings(Gender gender) {
-        return this.getSiblings().stream().filter(sibling -> sibling.getGender().equals(gender)).sorted().collect(
-                Collectors.toList());
+        return RelationshipExpression.compile("siblings[" + gender.name() + "]").evaluate(this);
     }
 
     /**
@@ -181,11 +252,8 @@ public class FamilyMember implements Comparable<FamilyMember> {
      * @return a {@link List} of {@link FamilyMember}s
      */
     public List<FamilyMember> getChildren(Gender gender) {
-        if (Gender.MALE.equals(this.gender)) {
-            return new ArrayList<>();
-        }
-        return this.children.stream().filter(child -> child.getGender().equals(gender)).sorted().collect(
-                Collectors.toList());
+        Relationship relationship = Gender.MALE.equals(gender) ? Relationship.SON: Relationship.DAUGHTER;
+        return relationship.getExpression().evaluate(this);
     }
 
     /**
@@ -195,7 +263,9 @@ public class FamilyMember implements Comparable<FamilyMember> {
      * @return a {@link List} of {@link FamilyMember}s
      */
     public List<FamilyMember> getMaternalAuntOrUncles(Gender gender) {
-        return getAuntOrUncles(this.mother, gender);
+        Relationship relationship = Gender.MALE.equals(gender) ? Relationship.MATERNAL_UNCLE:
+                Relationship.MATERNAL_AUNT;
+        return relationship.getExpression().evaluate(this);
     }
 
     /**
@@ -205,16 +275,9 @@ public class FamilyMember implements Comparable<FamilyMember> {
      * @return a {@link List} of {@link FamilyMember}s
      */
     public List<FamilyMember> getPaternalAuntOrUncles(Gender gender) {
-        return this.getAuntOrUncles(this.father, gender);
-    }
-
-    private List<FamilyMember> getAuntOrUncles(FamilyMember parent, Gender gender) {
-        if (parent != null) {
-            return parent.getSiblings().stream().filter(sibling -> sibling.getGender().equals(gender)).sorted().collect(
-                    Collectors.toList());
-        } else {
-            return new ArrayList<>();
-        }
+        Relationship relationship = Gender.MALE.equals(gender) ? Relationship.PATERNAL_UNCLE:
+                Relationship.PATERNAL_AUNT;
+        return relationship.getExpression().evaluate(this);
     }
 
     /**
@@ -224,50 +287,8 @@ public class FamilyMember implements Comparable<FamilyMember> {
      * @return a {@link List} of {@link FamilyMember}s
      */
     public List<FamilyMember> getInLaws(Gender gender) {
-        if (gender.equals(Gender.FEMALE)) {
-            return this.getSisterInLaws();
-        } else if (gender.equals(Gender.MALE)) {
-            return this.getBrotherInLaws();
-        } else {
-            return new ArrayList<>();
-        }
-    }
-
-    private List<FamilyMember> getSisterInLaws() {
-        List<FamilyMember> spousesSiblings = this.spouse != null ? this.spouse.getSiblings(): new ArrayList<>();
-        // Fetching sisters of spouse
-        List<FamilyMember> spousesSisters = spousesSiblings.stream().filter(
-                member -> Gender.FEMALE.equals(member.getGender())).collect(Collectors.toList());
-        // Assumption: Sister In-Laws include spouses brothers wives
-        List<FamilyMember> spousesBrothersWives = spousesSiblings.stream().filter(
-                member -> Gender.MALE.equals(member.getGender()) && member.getSpouse() != null).map(
-                FamilyMember::getSpouse).collect(Collectors.toList());
-        // Fetching wives of brothers
-        List<FamilyMember> wivesOfSiblings = this.getSiblings(Gender.MALE).stream().map(FamilyMember::getSpouse)
-                .collect(Collectors.toList());
-        spousesSisters.addAll(wivesOfSiblings);
-        spousesSisters.addAll(spousesBrothersWives);
-        // Sorting the relations to maintain the order of insertion
-        Collections.sort(spousesSisters);
-        return spousesSisters;
-    }
-
-    private List<FamilyMember> getBrotherInLaws() {
-        List<FamilyMember> spousesSiblings = this.spouse != null ? this.spouse.getSiblings(): new ArrayList<>();
-        // fetching brothers of spouse
-        List<FamilyMember> spousesBrothers = spousesSiblings.stream().filter(
-                member -> Gender.MALE.equals(member.getGender())).collect(Collectors.toList());
-        // Assumption: Brother In-Laws include spouses sisters husbands
-        List<FamilyMember> spousesSistersHusbands = spousesSiblings.stream().filter(
-                member -> Gender.FEMALE.equals(member.getGender()) && member.getSpouse() != null).map(
-                FamilyMember::getSpouse).collect(Collectors.toList());
-        // Fetching husbands of sisters
-        List<FamilyMember> husbandsOfSiblings = this.getSiblings(Gender.FEMALE).stream().map(FamilyMember::getSpouse)
-                .collect(Collectors.toList());
-        spousesBrothers.addAll(husbandsOfSiblings);
-        spousesBrothers.addAll(spousesSistersHusbands);
-        // Sorting the relations to maintain the order of insertion
-        Collections.sort(spousesBrothers);
-        return spousesBrothers;
+        Relationship relationship = Gender.MALE.equals(gender) ? Relationship.BROTHER_IN_LAW:
+                Relationship.SISTER_IN_LAW;
+        return relationship.getExpression().evaluate(this);
     }
 }
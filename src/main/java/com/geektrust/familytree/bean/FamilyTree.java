@@ -1,9 +1,19 @@
 package com.geektrust.familytree.bean;
 
+import com.geektrust.familytree.event.MutationEvent;
+import com.geektrust.familytree.event.MutationPublisher;
+import com.geektrust.familytree.event.MutationSubscription;
+import com.geektrust.familytree.event.MutationType;
+import com.geektrust.familytree.query.RelationshipExpression;
 import com.geektrust.familytree.util.CommonConstants;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -11,6 +21,7 @@ import java.util.stream.Collectors;
  */
 public class FamilyTree {
     private final FamilyMember root;
+    private final MutationPublisher mutationPublisher = new MutationPublisher();
 
     /**
      * Creates a new family tree
@@ -32,9 +43,20 @@ public class FamilyTree {
     public void addSpouse(String memberName, String spouseName, Gender gender) {
         FamilyMember member = getMember(this.root, memberName);
         if (member != null) {
+            boolean wasMarried = member.getSpouse() != null;
             FamilyMember spouse = new FamilyMember(spouseName, gender, null, null);
             spouse.setSpouse(member);
+            spouse.copyDescendantAggregates(member);
             member.setSpouse(spouse);
+            if (!wasMarried) {
+                for (FamilyMember ancestor = getParent(member); ancestor != null; ancestor = getParent(ancestor)) {
+                    ancestor.addMarriedDescendant();
+                    if (ancestor.getSpouse() != null) {
+                        ancestor.getSpouse().addMarriedDescendant();
+                    }
+                }
+            }
+            mutationPublisher.publish(MutationType.SPOUSE_ADDED, spouse);
         }
     }
 
@@ -60,6 +82,8 @@ public class FamilyTree {
         } else if (member.getGender().equals(Gender.FEMALE)) {
             FamilyMember child = new FamilyMember(childName, gender, member, member.getSpouse());
             if (member.addChild(child)) {
+                updateAncestorAggregates(child);
+                mutationPublisher.publish(MutationType.CHILD_ADDED, child);
                 return CommonConstants.CHILD_ADDED;
             } else {
                 return CommonConstants.CHILD_ADDITION_FAILED;
@@ -77,50 +101,151 @@ public class FamilyTree {
      */
     public String getRelationship(String memberName, Relationship relationship) {
         FamilyMember member = this.getMember(this.root, memberName);
-        List<FamilyMember> result;
         if (member == null) {
             return CommonConstants.PERSON_NOT_FOUND;
         }
+        return getRelationship(member, relationship);
+    }
 
-        switch (relationship) {
-            case SON:
-                result = member.getChildren(Gender.MALE);
-                break;
-            case DAUGHTER:
-                result = member.getChildren(Gender.FEMALE);
-                break;
-            case SIBLINGS:
-                result = member.getSiblings();
-                break;
-            case MATERNAL_AUNT:
-                result = member.getMaternalAuntOrUncles(Gender.FEMALE);
-                break;
-            case PATERNAL_AUNT:
-                result = member.getPaternalAuntOrUncles(Gender.FEMALE);
-                break;
-            case MATERNAL_UNCLE:
-                result = member.getMaternalAuntOrUncles(Gender.MALE);
-                break;
-            case PATERNAL_UNCLE:
-                result = member.getPaternalAuntOrUncles(Gender.MALE);
-                break;
-            case SISTER_IN_LAW:
-                result = member.getInLaws(Gender.FEMALE);
-                break;
-            case BROTHER_IN_LAW:
-                result = member.getInLaws(Gender.MALE);
-                break;
-            default:
-                return CommonConstants.NONE;
+    /**
+     * Returns a space separated string of relations of a given {@link Relationship} of a member which is already
+     * located in the family tree
+     *
+     * @param member       family member
+     * @param relationship relationship of the relations to retrieve
+     * @return space separated names of relations or {@code NONE} if no relations exist
+     */
+    public String getRelationship(FamilyMember member, Relationship relationship) {
+        return getRelations(member, relationship.getExpression());
+    }
+
+    /**
+     * Returns a space separated string of relations defined by a relationship expression
+     *
+     * @param memberName name of the current family member
+     * @param expression relationship expression, e.g. {@code father.siblings[male].children}
+     * @return space separated names of relations or {@code NONE} if no relations exist
+     * @throws IllegalArgumentException if the expression is not valid
+     * @see RelationshipExpression
+     */
+    public String getRelationship(String memberName, String expression) {
+        RelationshipExpression compiled = RelationshipExpression.compile(expression);
+        FamilyMember member = this.getMember(this.root, memberName);
+        if (member == null) {
+            return CommonConstants.PERSON_NOT_FOUND;
         }
+        return getRelations(member, compiled);
+    }
 
-        if (result != null && !result.isEmpty()) {
+    private String getRelations(FamilyMember member, RelationshipExpression expression) {
+        List<FamilyMember> result = expression.evaluate(member);
+        if (!result.isEmpty()) {
             return result.stream().map(FamilyMember::getName).collect(Collectors.joining(" "));
         } else {
             return CommonConstants.NONE;
         }
     }
 
+    /**
+     * Subscribes to the mutations of the family tree. Each successful {@link #addChild(String, String, Gender)} and
+     * {@link #addSpouse(String, String, Gender)} produces a {@link MutationEvent} which is delivered asynchronously.
+     * Exceptions thrown by the consumer are passed to the uncaught exception handler of the delivering thread.
+     *
+     * @param batchSize maximum number of events delivered to the consumer at once
+     * @param consumer  consumer of the event batches
+     * @return {@link MutationSubscription} which should be closed to stop receiving events
+     */
+    public MutationSubscription subscribe(int batchSize, Consumer<List<MutationEvent>> consumer) {
+        return mutationPublisher.subscribe(batchSize, consumer);
+    }
+
+    /**
+     * Subscribes to the mutations of the family tree, passing exceptions thrown by the consumer to a given handler
+     *
+     * @param batchSize    maximum number of events delivered to the consumer at once
+     * @param consumer     consumer of the event batches
+     * @param errorHandler handler of the exceptions thrown by the consumer
+     * @return {@link MutationSubscription} which should be closed to stop receiving events
+     * @see #subscribe(int, Consumer)
+     */
+    public MutationSubscription subscribe(int batchSize, Consumer<List<MutationEvent>> consumer,
+            Consumer<RuntimeException> errorHandler) {
+        return mutationPublisher.subscribe(batchSize, consumer, errorHandler);
+    }
+
+    /**
+     * Returns the descendant statistics of a given family member. Statistics are maintained as members are added, so
+     * this does not walk the family tree beyond locating the member.
+     *
+     * @param memberName name of the current family member
+     * @return space separated statistics or {@code PERSON_NOT_FOUND} if the member does not exist
+     */
+    public String getStatistics(String memberName) {
+        FamilyMember member = this.getMember(this.root, memberName);
+        if (member == null) {
+            return CommonConstants.PERSON_NOT_FOUND;
+        }
+        return String.format(CommonConstants.STATISTICS_FORMAT, member.getDescendantCount(),
+                member.getDescendantCount(Gender.MALE), member.getDescendantCount(Gender.FEMALE),
+                member.getMarriedDescendantCount(), member.getGenerationDepth());
+    }
+
+    /**
+     * Updates the descendant aggregates of every ancestor of a newly added child
+     *
+     * @param child newly added child
+     */
+    private void updateAncestorAggregates(FamilyMember child) {
+        int generation = 1;
+        for (FamilyMember ancestor = getParent(child); ancestor != null; ancestor = getParent(ancestor)) {
+            ancestor.addDescendant(child.getGender(), generation);
+            if (ancestor.getSpouse() != null) {
+                ancestor.getSpouse().addDescendant(child.getGender(), generation);
+            }
+            generation++;
+        }
+    }
+
+    /**
+     * Returns the parent of a member through whom the member's lineage continues. Members who joined the family
+     * through marriage have no parents, so the lineage continues through their spouse.
+     *
+     * @param member family member
+     * @return mother of the member or of the member's spouse, or {@code null} at the root of the family tree
+     */
+    private FamilyMember getParent(FamilyMember member) {
+        if (member.getMother() != null) {
+            return member.getMother();
+        }
+        FamilyMember spouse = member.getSpouse();
+        return spouse != null ? spouse.getMother(): null;
+    }
+
+    /**
+     * Returns all members of the family tree, including members who joined through marriage, by walking the tree once
+     *
+     * @return a {@link List} of {@link FamilyMember}s sorted by <code>index</code>
+     */
+    public List<FamilyMember> getMembers() {
+        List<FamilyMember> members = new ArrayList<>();
+        Deque<FamilyMember> stack = new ArrayDeque<>();
+        stack.push(this.root);
+        while (!stack.isEmpty()) {
+            FamilyMember member = stack.pop();
+            members.add(member);
+            FamilyMember spouse = member.getSpouse();
+            if (spouse != null) {
+                members.add(spouse);
+            }
+            FamilyMember mother = Gender.FEMALE.equals(member.getGender()) ? member: spouse;
+            if (mother != null) {
+                mother.getChildren().forEach(stack::push);
+            }
+        }
+        Collections.sort(members);
+        return members;
+    }
+
     /**
      * Returns the {@link FamilyMember} object of a given family member
      *
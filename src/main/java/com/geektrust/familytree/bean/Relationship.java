@@ -1,5 +1,7 @@
 package com.geektrust.familytree.bean;
 
+import com.geektrust.familytree.query.RelationshipExpression;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -7,11 +9,20 @@ import java.util.Map;
  * Represents supported relationships
  */
 public enum Relationship {
-    SON("Son"), DAUGHTER("Daughter"), SIBLINGS("Siblings"), BROTHER_IN_LAW("Brother-In-Law"), SISTER_IN_LAW(
-            "Sister-In-Law"), MATERNAL_AUNT("Maternal-Aunt"), PATERNAL_AUNT("Paternal-Aunt"), MATERNAL_UNCLE(
-            "Maternal-Uncle"), PATERNAL_UNCLE("Paternal-Uncle");
+    SON("Son", "children[male]"),
+    DAUGHTER("Daughter", "children[female]"),
+    SIBLINGS("Siblings", "siblings"),
+    BROTHER_IN_LAW("Brother-In-Law",
+            "spouse.siblings[male] | siblings[female].spouse | spouse.siblings[female].spouse"),
+    SISTER_IN_LAW("Sister-In-Law",
+            "spouse.siblings[female] | siblings[male].spouse | spouse.siblings[male].spouse"),
+    MATERNAL_AUNT("Maternal-Aunt", "mother.siblings[female]"),
+    PATERNAL_AUNT("Paternal-Aunt", "father.siblings[female]"),
+    MATERNAL_UNCLE("Maternal-Uncle", "mother.siblings[male]"),
+    PATERNAL_UNCLE("Paternal-Uncle", "father.siblings[male]");
 
     private final String value;
+    private final RelationshipExpression expression;
     private static final Map<String, Relationship> lookup = new HashMap<>();
 
     static {
@@ -20,8 +31,9 @@ public enum Relationship {
         }
     }
 
-    Relationship(String value) {
+    Relationship(String value, String expression) {
         this.value = value;
+        this.expression = RelationshipExpression.compile(expression);
     }
 
     /**
@@ -31,6 +43,13 @@ public enum Relationship {
         return this.value;
     }
 
+    /**
+     * @return compiled relationship expression which defines the relationship
+     */
+    public RelationshipExpression getExpression() {
+        return this.expression;
+    }
+
     /**
      * Get relationship by string value
      *
@@ -0,0 +1,94 @@
+package com.geektrust.familytree.event;
+
+import com.geektrust.familytree.bean.FamilyMember;
+import com.geektrust.familytree.bean.Gender;
+
+/**
+ * This class represents a single mutation of the family tree. Members are referred to by their <code>index</code>
+ * so that events do not hold references to the live family tree.
+ */
+public class MutationEvent {
+    /**
+     * {@code sequence} is a monotonically increasing number denoting the order of the mutation
+     */
+    private final long sequence;
+
+    private final MutationType type;
+
+    /**
+     * Index of the member added to the family
+     */
+    private final int memberId;
+
+    private final Gender gender;
+
+    /**
+     * Index of the mother of the member or {@code null} if the member has no mother in the family
+     */
+    private final Integer motherId;
+
+    /**
+     * Index of the father of the member or {@code null} if the member has no father in the family
+     */
+    private final Integer fatherId;
+
+    /**
+     * Index of the spouse of the member or {@code null} if the member is not married
+     */
+    private final Integer spouseId;
+
+    /**
+     * Creates a {@link MutationEvent} for a member
+     *
+     * @param sequence sequence number of the mutation
+     * @param type     type of the mutation
+     * @param member   member added to the family
+     */
+    public MutationEvent(long sequence, MutationType type, FamilyMember member) {
+        this.sequence = sequence;
+        this.type = type;
+        this.memberId = member.getIndex();
+        this.gender = member.getGender();
+        this.motherId = indexOf(member.getMother());
+        this.fatherId = indexOf(member.getFather());
+        this.spouseId = indexOf(member.getSpouse());
+    }
+
+    private static Integer indexOf(FamilyMember member) {
+        return member != null ? member.getIndex(): null;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public MutationType getType() {
+        return type;
+    }
+
+    public int getMemberId() {
+        return memberId;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    public Integer getMotherId() {
+        return motherId;
+    }
+
+    public Integer getFatherId() {
+        return fatherId;
+    }
+
+    public Integer getSpouseId() {
+        return spouseId;
+    }
+
+    @Override
+    public String toString() {
+        return "MutationEvent{sequence=" + sequence + ", type=" + type + ", memberId=" + memberId + ", gender="
+                + gender + ", motherId=" + motherId + ", fatherId=" + fatherId + ", spouseId=" + spouseId + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package com.geektrust.familytree.event;
+
+import com.geektrust.familytree.bean.FamilyMember;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the mutations of a family tree to its subscribers
+ */
+public class MutationPublisher {
+    private final List<MutationSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Subscribes to the mutations. Exceptions thrown by the consumer are passed to the uncaught exception handler of
+     * the delivering thread, and delivery continues with the next batch.
+     *
+     * @param batchSize maximum number of events delivered to the consumer at once
+     * @param consumer  consumer of the event batches
+     * @return {@link MutationSubscription} which should be closed to stop receiving events
+     */
+    public MutationSubscription subscribe(int batchSize, Consumer<List<MutationEvent>> consumer) {
+        return subscribe(batchSize, consumer, MutationPublisher::handleUncaught);
+    }
+
+    /**
+     * Subscribes to the mutations
+     *
+     * @param batchSize    maximum number of events delivered to the consumer at once
+     * @param consumer     consumer of the event batches
+     * @param errorHandler handler of the exceptions thrown by the consumer. Delivery continues with the next batch
+     * @return {@link MutationSubscription} which should be closed to stop receiving events
+     */
+    public MutationSubscription subscribe(int batchSize, Consumer<List<MutationEvent>> consumer,
+            Consumer<RuntimeException> errorHandler) {
+        MutationSubscription subscription = new MutationSubscription(batchSize, consumer, errorHandler, this);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private static void handleUncaught(RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    void unsubscribe(MutationSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Publishes a mutation of a member to all subscribers
+     *
+     * @param type   type of the mutation
+     * @param member member added to the family
+     */
+    public void publish(MutationType type, FamilyMember member) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        MutationEvent event = new MutationEvent(sequence.incrementAndGet(), type, member);
+        for (MutationSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+}
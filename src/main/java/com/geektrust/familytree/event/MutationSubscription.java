@@ -0,0 +1,129 @@
+package com.geektrust.familytree.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A subscription to the mutations of a family tree. Events are queued without blocking the mutating thread and are
+ * delivered to the consumer in batches on a dedicated thread, so each subscriber consumes at its own speed.
+ * <p>
+ * <b>Note:</b> the queue is unbounded. A subscriber which falls behind holds on to the pending events rather than
+ * slowing down the family tree.
+ */
+public class MutationSubscription implements AutoCloseable {
+    private final int batchSize;
+    private final Consumer<List<MutationEvent>> consumer;
+    private final Consumer<RuntimeException> errorHandler;
+    private final MutationPublisher publisher;
+
+    private final Queue<MutationEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final ExecutorService executor;
+    private volatile boolean closed;
+
+    /**
+     * Creates a {@link MutationSubscription}
+     *
+     * @param batchSize    maximum number of events delivered to the consumer at once
+     * @param consumer     consumer of the event batches
+     * @param errorHandler handler of the exceptions thrown by the consumer
+     * @param publisher    publisher the subscription is registered with
+     */
+    MutationSubscription(int batchSize, Consumer<List<MutationEvent>> consumer,
+            Consumer<RuntimeException> errorHandler, MutationPublisher publisher) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size should be a positive integer");
+        }
+        this.batchSize = batchSize;
+        this.consumer = consumer;
+        this.errorHandler = errorHandler;
+        this.publisher = publisher;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mutation-subscriber");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues an event for delivery and schedules the delivery if it is not already running
+     *
+     * @param event event to be delivered
+     */
+    void offer(MutationEvent event) {
+        if (closed) {
+            return;
+        }
+        pending.add(event);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Subscription was closed concurrently, pending events are discarded
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        List<MutationEvent> batch = new ArrayList<>(batchSize);
+        MutationEvent event;
+        while (!closed && (event = pending.poll()) != null) {
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                deliver(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+        draining.set(false);
+        // An event may have been queued after the last poll but before the flag was cleared
+        if (!pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void deliver(List<MutationEvent> batch) {
+        if (closed) {
+            return;
+        }
+        try {
+            consumer.accept(batch);
+        } catch (RuntimeException e) {
+            try {
+                errorHandler.accept(e);
+            } catch (RuntimeException handlerException) {
+                handlerException.addSuppressed(e);
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, handlerException);
+            }
+        }
+    }
+
+    /**
+     * Stops delivering events to the consumer. Events which are not yet delivered are discarded.
+     * <p>
+     * <b>Note:</b> this does not wait for the consumer. A batch which the consumer is already processing when the
+     * subscription is closed runs to completion, but no further batch is delivered.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        publisher.unsubscribe(this);
+        executor.shutdown();
+        pending.clear();
+    }
+}
@@ -0,0 +1,8 @@
+package com.geektrust.familytree.event;
+
+/**
+ * Represents the kinds of mutations of the family tree
+ */
+public enum MutationType {
+    CHILD_ADDED, SPOUSE_ADDED
+}
@@ -0,0 +1,228 @@
+package com.geektrust.familytree.query;
+
+import com.geektrust.familytree.bean.FamilyTree;
+import com.geektrust.familytree.bean.Gender;
+import com.geektrust.familytree.bean.Relationship;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread safe front for a {@link FamilyTree} which coalesces concurrent identical relationship queries. When many
+ * callers ask for the same member and {@link Relationship} at the same time, only the first caller computes the
+ * result and the rest wait for and share it.
+ * <p>
+ * Queries are evaluated under a read lock and mutations under a write lock, so a mutation waits for the queries
+ * in-flight when it starts. A query is only shared with callers which observed the same tree <code>version</code>.
+ * Therefore a caller never receives a result computed before a mutation which completed before the caller arrived.
+ */
+public class CoalescingFamilyTree {
+    private final FamilyTree familyTree;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Queries which are being computed at the moment, keyed by the tree version and the query parameters
+     */
+    private final ConcurrentMap<QueryKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * {@code version} is incremented on every mutation of the family tree
+     */
+    private long version = 0;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong computationCount = new AtomicLong();
+
+    /**
+     * Creates a {@link CoalescingFamilyTree}
+     *
+     * @param familyTree family tree to delegate to. All further access to the tree should go through this object
+     */
+    public CoalescingFamilyTree(FamilyTree familyTree) {
+        this.familyTree = familyTree;
+    }
+
+    /**
+     * Add spouse to a family member
+     *
+     * @param memberName name of the current family member
+     * @param spouseName name of the spouse
+     * @param gender     gender of the spouse
+     * @see FamilyTree#addSpouse(String, String, Gender)
+     */
+    public void addSpouse(String memberName, String spouseName, Gender gender) {
+        lock.writeLock().lock();
+        try {
+            familyTree.addSpouse(memberName, spouseName, gender);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a child to a given member of the family
+     *
+     * @param memberName name of the current family member
+     * @param childName  name of the child to be added
+     * @param gender     gender of the child to be added
+     * @return result of the operation
+     * @see FamilyTree#addChild(String, String, Gender)
+     */
+    public String addChild(String memberName, String childName, Gender gender) {
+        lock.writeLock().lock();
+        try {
+            String result = familyTree.addChild(memberName, childName, gender);
+            version++;
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a space separated string of relations of a given {@link Relationship}. If an identical query is
+     * already in-flight the result of that query is returned.
+     *
+     * @param memberName   name of the current family member
+     * @param relationship relationship of the relations to retrieve
+     * @return space separated names of relations or {@code NONE} if no relations exist
+     * @see FamilyTree#getRelationship(String, Relationship)
+     */
+    public String getRelationship(String memberName, Relationship relationship) {
+        CompletableFuture<String> existing;
+        lock.readLock().lock();
+        try {
+            QueryKey key = new QueryKey(version, memberName, relationship);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            existing = inFlight.putIfAbsent(key, future);
+            requestCount.incrementAndGet();
+            if (existing == null) {
+                computationCount.incrementAndGet();
+                return compute(key, future);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // The shared query was started at the version this caller observed, so waiting outside the lock is safe
+        return join(existing);
+    }
+
+    /**
+     * Computes a query and completes its future on every path, so that callers waiting for it are never left blocked
+     *
+     * @param key    query to compute
+     * @param future future shared with the callers waiting for the query
+     * @return result of the query
+     */
+    private String compute(QueryKey key, CompletableFuture<String> future) {
+        try {
+            String result = familyTree.getRelationship(key.memberName, key.relationship);
+            future.complete(result);
+            return result;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Returns the descendant statistics of a given family member
+     *
+     * @param memberName name of the current family member
+     * @return space separated statistics or {@code PERSON_NOT_FOUND} if the member does not exist
+     * @see FamilyTree#getStatistics(String)
+     */
+    public String getStatistics(String memberName) {
+        lock.readLock().lock();
+        try {
+            return familyTree.getStatistics(memberName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String join(CompletableFuture<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return number of relationship queries received, counted once a query has either joined an in-flight query or
+     * started its own computation
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return number of relationship queries actually computed against the family tree
+     */
+    public long getComputationCount() {
+        return computationCount.get();
+    }
+
+    /**
+     * Returns the collapse ratio, i.e. the number of queries received per query computed. A ratio of {@code 1.0}
+     * means no queries were coalesced.
+     *
+     * @return collapse ratio or {@code 0.0} if no queries have been computed
+     */
+    public double getCollapseRatio() {
+        long computations = computationCount.get();
+        return computations == 0 ? 0.0: (double) requestCount.get() / computations;
+    }
+
+    /**
+     * Identifies a relationship query at a given version of the family tree
+     */
+    private static final class QueryKey {
+        private final long version;
+        private final String memberName;
+        private final Relationship relationship;
+
+        QueryKey(long version, String memberName, Relationship relationship) {
+            this.version = version;
+            this.memberName = memberName;
+            this.relationship = relationship;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey that = (QueryKey) o;
+            return version == that.version && Objects.equals(memberName, that.memberName)
+                    && relationship == that.relationship;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, memberName, relationship);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.geektrust.familytree.query;
+
+import com.geektrust.familytree.bean.Gender;
+
+/**
+ * Navigation over the members of a family, independent of how the members are stored. {@link RelationshipExpression}s
+ * are evaluated against a {@link FamilyGraph}.
+ *
+ * @param <M> type which identifies a member. Members which are the same person should be {@code equals}
+ */
+public interface FamilyGraph<M> {
+
+    /**
+     * @param member family member
+     * @return mother of the member or {@code null} if the member has no mother in the family
+     */
+    M getMother(M member);
+
+    /**
+     * @param member family member
+     * @return father of the member or {@code null} if the member has no father in the family
+     */
+    M getFather(M member);
+
+    /**
+     * @param member family member
+     * @return spouse of the member or {@code null} if the member is not married
+     */
+    M getSpouse(M member);
+
+    /**
+     * Returns the children of a member. Only female members have children.
+     *
+     * @param member family member
+     * @return children of the member, empty if the member has no children
+     */
+    Iterable<M> getChildren(M member);
+
+    /**
+     * @param member family member
+     * @return gender of the member
+     */
+    Gender getGender(M member);
+
+    /**
+     * @param member family member
+     * @return <code>index</code> of the member, which denotes the order the member added to the family
+     */
+    int getIndex(M member);
+}
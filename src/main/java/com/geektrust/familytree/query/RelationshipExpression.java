@@ -0,0 +1,357 @@
+package com.geektrust.familytree.query;
+
+import com.geektrust.familytree.bean.FamilyMember;
+import com.geektrust.familytree.bean.Gender;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled relationship expression. An expression is a path of steps from a member to its relations, e.g.
+ * {@code father.siblings[male].children} for paternal cousins. Paths may be combined with {@code |}.
+ * <pre>
+ * expression := path ('|' path)*
+ * path       := step ('.' step)*
+ * step       := ('mother' | 'father' | 'spouse' | 'children' | 'siblings') ('[' ('male' | 'female') ']')?
+ * </pre>
+ * Each path is compiled once into a chain of steps. A member reached by a step is pushed straight to the next step,
+ * so no intermediate lists are created while the expression is evaluated. Compiled expressions are kept in a bounded
+ * cache keyed by the normalised expression, i.e. in lower case without whitespace around the delimiters.
+ * <p>
+ * Expressions are evaluated against a {@link FamilyGraph}, so the same plan runs against {@link FamilyMember}s and
+ * other member stores.
+ */
+public class RelationshipExpression {
+    /**
+     * Maximum number of compiled expressions kept in the cache
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    private static final Pattern DELIMITER_WHITESPACE = Pattern.compile("\\s*([.|\\[\\]])\\s*");
+
+    /**
+     * Least recently used compiled expressions
+     */
+    private static final Map<String, RelationshipExpression> cache = new LinkedHashMap<String,
+            RelationshipExpression>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RelationshipExpression> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static final FamilyGraph<FamilyMember> MEMBERS = new FamilyGraph<FamilyMember>() {
+        @Override
+        public FamilyMember getMother(FamilyMember member) {
+            return member.getMother();
+        }
+
+        @Override
+        public FamilyMember getFather(FamilyMember member) {
+            return member.getFather();
+        }
+
+        @Override
+        public FamilyMember getSpouse(FamilyMember member) {
+            return member.getSpouse();
+        }
+
+        @Override
+        public Iterable<FamilyMember> getChildren(FamilyMember member) {
+            // Male members do not have children
+            return member.getChildren() != null ? member.getChildren(): Collections.<FamilyMember>emptyList();
+        }
+
+        @Override
+        public Gender getGender(FamilyMember member) {
+            return member.getGender();
+        }
+
+        @Override
+        public int getIndex(FamilyMember member) {
+            return member.getIndex();
+        }
+    };
+
+    private final String expression;
+
+    /**
+     * First step of each path of the expression
+     */
+    private final List<Step> paths;
+
+    private RelationshipExpression(String expression, List<Step> paths) {
+        this.expression = expression;
+        this.paths = paths;
+    }
+
+    /**
+     * Returns the compiled form of an expression, compiling it if it is not already in the cache. Invalid
+     * expressions are not cached.
+     *
+     * @param expression relationship expression
+     * @return {@link RelationshipExpression}
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static RelationshipExpression compile(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Relationship expression should not be null");
+        }
+        String normalised = normalise(expression);
+        RelationshipExpression compiled;
+        synchronized (cache) {
+            compiled = cache.get(normalised);
+        }
+        if (compiled == null) {
+            compiled = parse(normalised);
+            synchronized (cache) {
+                cache.put(normalised, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    private static String normalise(String expression) {
+        return DELIMITER_WHITESPACE.matcher(expression.trim().toLowerCase()).replaceAll("$1");
+    }
+
+    /**
+     * @return number of compiled expressions in the cache
+     */
+    public static int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Evaluates the expression for a given member
+     *
+     * @param member family member to start from
+     * @return a {@link List} of distinct {@link FamilyMember}s sorted by <code>index</code>
+     */
+    public List<FamilyMember> evaluate(FamilyMember member) {
+        return evaluate(MEMBERS, member);
+    }
+
+    /**
+     * Evaluates the expression for a given member of a family graph
+     *
+     * @param graph  family graph to navigate
+     * @param member family member to start from
+     * @param <M>    type which identifies a member
+     * @return a {@link List} of distinct members sorted by <code>index</code>
+     */
+    public <M> List<M> evaluate(FamilyGraph<M> graph, M member) {
+        List<M> result = new ArrayList<>();
+        for (Step path : paths) {
+            path.accept(graph, member, result);
+        }
+        if (result.size() > 1) {
+            // Sorting the relations to maintain the order of insertion. Duplicates become adjacent after sorting
+            result.sort(Comparator.comparingInt(graph::getIndex));
+            int distinct = 1;
+            for (int i = 1; i < result.size(); i++) {
+                if (!result.get(i).equals(result.get(distinct - 1))) {
+                    result.set(distinct++, result.get(i));
+                }
+            }
+            result.subList(distinct, result.size()).clear();
+        }
+        return result;
+    }
+
+    /**
+     * @return normalised expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static RelationshipExpression parse(String expression) {
+        List<Step> paths = new ArrayList<>();
+        for (String path : expression.split("\\|", -1)) {
+            paths.add(parsePath(expression, path));
+        }
+        return new RelationshipExpression(expression, paths);
+    }
+
+    /**
+     * Compiles a path into a chain of steps, starting from the last step of the path
+     */
+    private static Step parsePath(String expression, String path) {
+        String[] steps = path.split("\\.", -1);
+        Step next = null;
+        for (int i = steps.length - 1; i >= 0; i--) {
+            String step = steps[i];
+            Gender gender = null;
+            int filterStart = step.indexOf('[');
+            if (filterStart >= 0) {
+                if (!step.endsWith("]")) {
+                    throw invalid(expression, "unterminated gender filter in '" + step + "'");
+                }
+                gender = parseGender(expression, step.substring(filterStart + 1, step.length() - 1));
+                step = step.substring(0, filterStart);
+            }
+            if (gender != null) {
+                next = new GenderFilter(gender, next);
+            }
+            next = createStep(expression, step, next);
+        }
+        return next;
+    }
+
+    private static Gender parseGender(String expression, String gender) {
+        for (Gender value : Gender.values()) {
+            if (value.name().equalsIgnoreCase(gender)) {
+                return value;
+            }
+        }
+        throw invalid(expression, "unknown gender '" + gender + "'");
+    }
+
+    private static Step createStep(String expression, String step, Step next) {
+        switch (step) {
+            case "mother":
+                return new MotherStep(next);
+            case "father":
+                return new FatherStep(next);
+            case "spouse":
+                return new SpouseStep(next);
+            case "children":
+                return new ChildrenStep(next);
+            case "siblings":
+                return new SiblingsStep(next);
+            case "":
+                throw invalid(expression, "empty step");
+            default:
+                throw invalid(expression, "unknown step '" + step + "'");
+        }
+    }
+
+    private static IllegalArgumentException invalid(String expression, String reason) {
+        return new IllegalArgumentException("Invalid relationship expression '" + expression + "': " + reason);
+    }
+
+    /**
+     * A step of a compiled path. A step finds the members related to a given member and passes each of them to the
+     * next step, or to the result if it is the last step of the path.
+     */
+    private abstract static class Step {
+        private final Step next;
+
+        Step(Step next) {
+            this.next = next;
+        }
+
+        /**
+         * Applies the step to a member
+         *
+         * @param graph  family graph to navigate
+         * @param member member reached by the previous step
+         * @param result result of the expression
+         */
+        abstract <M> void accept(FamilyGraph<M> graph, M member, List<M> result);
+
+        <M> void emit(FamilyGraph<M> graph, M member, List<M> result) {
+            if (member == null) {
+                return;
+            }
+            if (next == null) {
+                result.add(member);
+            } else {
+                next.accept(graph, member, result);
+            }
+        }
+    }
+
+    private static final class MotherStep extends Step {
+        MotherStep(Step next) {
+            super(next);
+        }
+
+        @Override
+        <M> void accept(FamilyGraph<M> graph, M member, List<M> result) {
+            emit(graph, graph.getMother(member), result);
+        }
+    }
+
+    private static final class FatherStep extends Step {
+        FatherStep(Step next) {
+            super(next);
+        }
+
+        @Override
+        <M> void accept(FamilyGraph<M> graph, M member, List<M> result) {
+            emit(graph, graph.getFather(member), result);
+        }
+    }
+
+    private static final class SpouseStep extends Step {
+        SpouseStep(Step next) {
+            super(next);
+        }
+
+        @Override
+        <M> void accept(FamilyGraph<M> graph, M member, List<M> result) {
+            emit(graph, graph.getSpouse(member), result);
+        }
+    }
+
+    private static final class ChildrenStep extends Step {
+        ChildrenStep(Step next) {
+            super(next);
+        }
+
+        @Override
+        <M> void accept(FamilyGraph<M> graph, M member, List<M> result) {
+            for (M child : graph.getChildren(member)) {
+                emit(graph, child, result);
+            }
+        }
+    }
+
+    private static final class SiblingsStep extends Step {
+        SiblingsStep(Step next) {
+            super(next);
+        }
+
+        @Override
+        <M> void accept(FamilyGraph<M> graph, M member, List<M> result) {
+            M mother = graph.getMother(member);
+            if (mother != null) {
+                for (M sibling : graph.getChildren(mother)) {
+                    if (!sibling.equals(member)) {
+                        emit(graph, sibling, result);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class GenderFilter extends Step {
+        private final Gender gender;
+
+        GenderFilter(Gender gender, Step next) {
+            super(next);
+            this.gender = gender;
+        }
+
+        @Override
+        <M> void accept(FamilyGraph<M> graph, M member, List<M> result) {
+            if (gender.equals(graph.getGender(member))) {
+                emit(graph, member, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.geektrust.familytree.query;
+
+import com.geektrust.familytree.bean.FamilyMember;
+import com.geektrust.familytree.bean.FamilyTree;
+import com.geektrust.familytree.bean.Relationship;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Produces every {@link Relationship} of every member of a {@link FamilyTree}. The tree is walked once and the
+ * relationships are computed in parallel with fork/join. Output is streamed one block of members at a time in the
+ * order of the member <code>index</code>, so the result is deterministic regardless of the parallelism.
+ * <p>
+ * Each output line has the format {@code <member> <relationship> <relations>}, e.g. {@code Remus Maternal-Aunt
+ * Dominique}.
+ */
+public class RelationshipReport {
+    /**
+     * Number of members computed before their lines are written to the output
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Tasks covering fewer members than the threshold are computed sequentially
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+
+    private final FamilyTree familyTree;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a {@link RelationshipReport} which runs on the common fork/join pool
+     *
+     * @param familyTree family tree to report
+     */
+    public RelationshipReport(FamilyTree familyTree) {
+        this(familyTree, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a {@link RelationshipReport}
+     *
+     * @param familyTree family tree to report
+     * @param pool       fork/join pool to compute the relationships on
+     */
+    public RelationshipReport(FamilyTree familyTree, ForkJoinPool pool) {
+        this.familyTree = familyTree;
+        this.pool = pool;
+    }
+
+    /**
+     * Computes the report and writes it line by line to a given output
+     *
+     * @param output consumer of the report lines
+     */
+    public void write(Consumer<String> output) {
+        List<FamilyMember> members = familyTree.getMembers();
+        Relationship[] relationships = Relationship.values();
+        for (int from = 0; from < members.size(); from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, members.size());
+            String[] lines = new String[(to - from) * relationships.length];
+            pool.invoke(new ReportTask(members, relationships, lines, from, from, to));
+            for (String line : lines) {
+                output.accept(line);
+            }
+        }
+    }
+
+    /**
+     * Computes the report lines of a range of members
+     */
+    private final class ReportTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<FamilyMember> members;
+        private final Relationship[] relationships;
+        private final String[] lines;
+        private final int offset;
+        private final int from;
+        private final int to;
+
+        ReportTask(List<FamilyMember> members, Relationship[] relationships, String[] lines, int offset, int from,
+                int to) {
+            this.members = members;
+            this.relationships = relationships;
+            this.lines = lines;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    FamilyMember member = members.get(i);
+                    int line = (i - offset) * relationships.length;
+                    for (Relationship relationship : relationships) {
+                        lines[line++] = member.getName() + " " + relationship.getValue() + " "
+                                + familyTree.getRelationship(member, relationship);
+                    }
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ReportTask(members, relationships, lines, offset, from, mid),
+                        new ReportTask(members, relationships, lines, offset, mid, to));
+            }
+        }
+    }
+}
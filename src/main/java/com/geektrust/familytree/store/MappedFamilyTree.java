@@ -0,0 +1,139 @@
+package com.geektrust.familytree.store;
+
+import com.geektrust.familytree.bean.Gender;
+import com.geektrust.familytree.bean.Relationship;
+import com.geektrust.familytree.query.FamilyGraph;
+import com.geektrust.familytree.query.RelationshipExpression;
+import com.geektrust.familytree.util.CommonConstants;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * A read only family tree which answers relationship queries directly from a {@link MappedMemberStore}, without
+ * creating {@link com.geektrust.familytree.bean.FamilyMember} objects. Relationships are evaluated with the same
+ * compiled {@link RelationshipExpression}s as {@link com.geektrust.familytree.bean.FamilyTree}, with members
+ * identified by their slot.
+ */
+public class MappedFamilyTree implements FamilyGraph<Integer> {
+    private final MappedMemberStore store;
+
+    /**
+     * Creates a {@link MappedFamilyTree}
+     *
+     * @param store store of the family members
+     */
+    public MappedFamilyTree(MappedMemberStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Opens a family tree from an existing store file
+     *
+     * @param path path of the store file
+     * @return {@link MappedFamilyTree}
+     * @throws IOException if error occurred while mapping the file
+     */
+    public static MappedFamilyTree open(Path path) throws IOException {
+        return new MappedFamilyTree(MappedMemberStore.open(path));
+    }
+
+    /**
+     * Returns a space separated string of relations of a given {@link Relationship}
+     *
+     * @param memberName   name of the current family member
+     * @param relationship relationship of the relations to retrieve
+     * @return space separated names of relations or {@code NONE} if no relations exist
+     */
+    public String getRelationship(String memberName, Relationship relationship) {
+        return getRelations(memberName, relationship.getExpression());
+    }
+
+    /**
+     * Returns a space separated string of relations defined by a relationship expression
+     *
+     * @param memberName name of the current family member
+     * @param expression relationship expression, e.g. {@code father.siblings[male].children}
+     * @return space separated names of relations or {@code NONE} if no relations exist
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public String getRelationship(String memberName, String expression) {
+        return getRelations(memberName, RelationshipExpression.compile(expression));
+    }
+
+    private String getRelations(String memberName, RelationshipExpression expression) {
+        int member = store.find(memberName);
+        if (member == MappedMemberStore.NONE) {
+            return CommonConstants.PERSON_NOT_FOUND;
+        }
+        List<Integer> result = expression.evaluate(this, member);
+        if (!result.isEmpty()) {
+            return result.stream().map(store::getName).collect(Collectors.joining(" "));
+        } else {
+            return CommonConstants.NONE;
+        }
+    }
+
+    /**
+     * @return number of members in the family tree
+     */
+    public int getMemberCount() {
+        return store.getMemberCount();
+    }
+
+    @Override
+    public Integer getMother(Integer member) {
+        return toMember(store.getMother(member));
+    }
+
+    @Override
+    public Integer getFather(Integer member) {
+        return toMember(store.getFather(member));
+    }
+
+    @Override
+    public Integer getSpouse(Integer member) {
+        return toMember(store.getSpouse(member));
+    }
+
+    @Override
+    public Iterable<Integer> getChildren(Integer member) {
+        int firstChild = store.getFirstChild(member);
+        return () -> new Iterator<Integer>() {
+            private int next = firstChild;
+
+            @Override
+            public boolean hasNext() {
+                return next != MappedMemberStore.NONE;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == MappedMemberStore.NONE) {
+                    throw new NoSuchElementException();
+                }
+                int child = next;
+                next = store.getNextSibling(child);
+                return child;
+            }
+        };
+    }
+
+    @Override
+    public Gender getGender(Integer member) {
+        return store.getGender(member);
+    }
+
+    @Override
+    public int getIndex(Integer member) {
+        return store.getIndex(member);
+    }
+
+    private static Integer toMember(int slot) {
+        return slot != MappedMemberStore.NONE ? slot: null;
+    }
+}
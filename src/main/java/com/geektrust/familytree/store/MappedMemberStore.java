@@ -0,0 +1,397 @@
+package com.geektrust.familytree.store;
+
+import com.geektrust.familytree.bean.FamilyMember;
+import com.geektrust.familytree.bean.FamilyTree;
+import com.geektrust.familytree.bean.Gender;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read only store of family members kept in a memory-mapped file. Members are kept in fixed width slots so that a
+ * store opens without reading the file, and the OS page cache holds the parts of the file being queried.
+ * <p>
+ * The file consists of a header followed by three regions, each mapped separately:
+ * <ol>
+ * <li>member slots ordered by the member <code>index</code>, each holding the index, gender, mother, father, spouse,
+ * first child, next sibling and name offset as 32-bit integers. Members are referred to by slot number and
+ * {@code NONE} denotes a missing member</li>
+ * <li>names, each stored as a length followed by UTF-8 bytes</li>
+ * <li>an open addressing hash table from member names to slot numbers</li>
+ * </ol>
+ * Stores are built with a {@link Writer}, which appends members without holding them in memory.
+ * <p>
+ * <b>Note:</b> as in {@link FamilyMember}, children are linked only from the mother. Each region is limited to 2GB as
+ * it is mapped into a single buffer, so a store holds at most {@code Integer.MAX_VALUE / 32} members and 2GB of names.
+ * The {@link Writer} rejects members beyond these limits.
+ */
+public class MappedMemberStore {
+    /**
+     * Denotes a missing member in a slot field
+     */
+    public static final int NONE = -1;
+
+    private static final int MAGIC = 0x46544d53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 32;
+
+    /*
+    Offsets of the fields within a slot
+     */
+    private static final int INDEX = 0;
+    private static final int GENDER = 4;
+    private static final int MOTHER = 8;
+    private static final int FATHER = 12;
+    private static final int SPOUSE = 16;
+    private static final int FIRST_CHILD = 20;
+    private static final int NEXT_SIBLING = 24;
+    private static final int NAME_OFFSET = 28;
+
+    private static final Gender[] GENDERS = Gender.values();
+
+    /**
+     * Maximum number of members, so that the slots fit in a single mapping and slot offsets fit in an {@code int}
+     */
+    private static final int MAX_SLOTS = Integer.MAX_VALUE / SLOT_SIZE;
+
+    private final int memberCount;
+    private final ByteBuffer slots;
+    private final ByteBuffer names;
+    private final ByteBuffer nameIndex;
+    private final int nameIndexMask;
+
+    private MappedMemberStore(int memberCount, ByteBuffer slots, ByteBuffer names, ByteBuffer nameIndex) {
+        this.memberCount = memberCount;
+        this.slots = slots;
+        this.names = names;
+        this.nameIndex = nameIndex;
+        this.nameIndexMask = nameIndex.capacity() / Integer.BYTES - 1;
+    }
+
+    /**
+     * Opens an existing store. Only the header is read, the rest of the file is paged in on demand.
+     *
+     * @param path path of the store file
+     * @return {@link MappedMemberStore}
+     * @throws IOException if error occurred while mapping the file or the file is not a member store
+     */
+    public static MappedMemberStore open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a family member store: " + path);
+            }
+            int memberCount = header.getInt(8);
+            int nameIndexCapacity = header.getInt(12);
+            long namesOffset = header.getLong(16);
+            long nameIndexOffset = header.getLong(24);
+
+            long slotsOffset = HEADER_SIZE;
+            return new MappedMemberStore(memberCount,
+                    channel.map(FileChannel.MapMode.READ_ONLY, slotsOffset, namesOffset - slotsOffset),
+                    channel.map(FileChannel.MapMode.READ_ONLY, namesOffset, nameIndexOffset - namesOffset),
+                    channel.map(FileChannel.MapMode.READ_ONLY, nameIndexOffset,
+                            (long) nameIndexCapacity * Integer.BYTES));
+        }
+    }
+
+    /**
+     * Writes all members of a family tree to a new store file, replacing the file if it exists
+     *
+     * @param familyTree family tree to write
+     * @param path       path of the store file
+     * @throws IOException if error occurred while writing the file
+     * @see Writer
+     */
+    public static void write(FamilyTree familyTree, Path path) throws IOException {
+        List<FamilyMember> members = familyTree.getMembers();
+        try (Writer writer = new Writer(path)) {
+            for (int slot = 0; slot < members.size(); slot++) {
+                FamilyMember member = members.get(slot);
+                // The spouse added later links the couple
+                int spouse = slotOf(members, member.getSpouse());
+                writer.append(member.getIndex(), member.getName(), member.getGender(),
+                        slotOf(members, member.getMother()), slotOf(members, member.getFather()),
+                        spouse < slot ? spouse: NONE);
+            }
+        }
+    }
+
+    /**
+     * Members are sorted by index, which is also the slot order, so a member's slot is found by a binary search
+     */
+    private static int slotOf(List<FamilyMember> members, FamilyMember member) {
+        return member != null ? Collections.binarySearch(members, member): NONE;
+    }
+
+    /**
+     * Builds a store file by appending members one at a time in <code>index</code> order, without keeping the members
+     * in memory. Slots are written through memory-mapped chunks and names are streamed to a temporary file which is
+     * copied after the slots when the writer is closed. The name index is built from the file at that point.
+     * <p>
+     * <b>Note:</b> children are linked newest first. Queries sort their results by index, so the order of the links
+     * does not affect them.
+     */
+    public static class Writer implements AutoCloseable {
+        /**
+         * Number of slots mapped at once while writing
+         */
+        private static final int CHUNK_SLOTS = 32768;
+
+        private final Path path;
+        private final FileChannel channel;
+        private final Path namesPath;
+        private final DataOutputStream namesOutput;
+        private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+        private int slotCount;
+        private long namesSize;
+        private int lastIndex = Integer.MIN_VALUE;
+        private boolean closed;
+
+        /**
+         * Creates a {@link Writer} for a new store file, replacing the file if it exists
+         *
+         * @param path path of the store file
+         * @throws IOException if error occurred while creating the file
+         */
+        public Writer(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            Path directory = path.toAbsolutePath().getParent();
+            this.namesPath = Files.createTempFile(directory, path.getFileName().toString(), ".names");
+            this.namesOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(namesPath)));
+        }
+
+        /**
+         * Appends a member to the store. Mother, father and spouse are referred to by the slots returned when they
+         * were appended, so they must be appended before the member. The spouse is linked to the member in both
+         * directions, and the member is linked as a child of the mother.
+         *
+         * @param index  index of the member, greater than the index of the previous member
+         * @param name   name of the member
+         * @param gender gender of the member
+         * @param mother slot of the mother or {@code NONE}
+         * @param father slot of the father or {@code NONE}
+         * @param spouse slot of the spouse or {@code NONE}
+         * @return slot of the member
+         * @throws IOException           if error occurred while writing the member
+         * @throws IllegalStateException if the store can not hold another member
+         */
+        public int append(int index, String name, Gender gender, int mother, int father, int spouse)
+                throws IOException {
+            if (closed) {
+                throw new IllegalStateException("Writer is closed");
+            }
+            if (index <= lastIndex) {
+                throw new IllegalArgumentException("Members should be appended in index order: " + index);
+            }
+            checkReference("mother", mother);
+            checkReference("father", father);
+            checkReference("spouse", spouse);
+            if (slotCount >= MAX_SLOTS) {
+                throw new IllegalStateException("Store is full, a store holds at most " + MAX_SLOTS + " members");
+            }
+            byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+            if (namesSize + Integer.BYTES + encodedName.length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Store is full, names of the members exceed "
+                        + Integer.MAX_VALUE + " bytes");
+            }
+
+            int slot = slotCount;
+            ByteBuffer chunk = chunkOf(slot);
+            int base = (slot % CHUNK_SLOTS) * SLOT_SIZE;
+            chunk.putInt(base + INDEX, index);
+            chunk.putInt(base + GENDER, gender.ordinal());
+            chunk.putInt(base + MOTHER, mother);
+            chunk.putInt(base + FATHER, father);
+            chunk.putInt(base + SPOUSE, spouse);
+            chunk.putInt(base + FIRST_CHILD, NONE);
+            chunk.putInt(base + NEXT_SIBLING, NONE);
+            chunk.putInt(base + NAME_OFFSET, (int) namesSize);
+
+            namesOutput.writeInt(encodedName.length);
+            namesOutput.write(encodedName);
+            namesSize += Integer.BYTES + encodedName.length;
+
+            if (spouse != NONE) {
+                putField(spouse, SPOUSE, slot);
+            }
+            if (mother != NONE) {
+                chunk.putInt(base + NEXT_SIBLING, getField(mother, FIRST_CHILD));
+                putField(mother, FIRST_CHILD, slot);
+            }
+            slotCount++;
+            lastIndex = index;
+            return slot;
+        }
+
+        private void checkReference(String field, int slot) {
+            if (slot != NONE && (slot < 0 || slot >= slotCount)) {
+                throw new IllegalArgumentException("Invalid " + field + " slot " + slot + ", " + slotCount
+                        + " members appended");
+            }
+        }
+
+        private MappedByteBuffer chunkOf(int slot) throws IOException {
+            int chunk = slot / CHUNK_SLOTS;
+            while (chunks.size() <= chunk) {
+                long offset = HEADER_SIZE + (long) chunks.size() * CHUNK_SLOTS * SLOT_SIZE;
+                chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) CHUNK_SLOTS * SLOT_SIZE));
+            }
+            return chunks.get(chunk);
+        }
+
+        private int getField(int slot, int field) {
+            return chunks.get(slot / CHUNK_SLOTS).getInt((slot % CHUNK_SLOTS) * SLOT_SIZE + field);
+        }
+
+        private void putField(int slot, int field, int value) {
+            chunks.get(slot / CHUNK_SLOTS).putInt((slot % CHUNK_SLOTS) * SLOT_SIZE + field, value);
+        }
+
+        /**
+         * Completes the store by copying the names after the slots, building the name index and writing the header
+         *
+         * @throws IOException if error occurred while completing the file
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                namesOutput.close();
+                long namesOffset = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+                long nameIndexOffset = namesOffset + namesSize;
+                int nameIndexCapacity = Integer.highestOneBit(Math.max(slotCount, 1) * 2 - 1) << 1;
+
+                try (FileChannel namesChannel = FileChannel.open(namesPath, StandardOpenOption.READ)) {
+                    long copied = 0;
+                    while (copied < namesSize) {
+                        copied += channel.transferFrom(namesChannel.position(copied), namesOffset + copied,
+                                namesSize - copied);
+                    }
+                }
+
+                MappedByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, namesOffset, namesSize);
+                MappedByteBuffer nameIndex = channel.map(FileChannel.MapMode.READ_WRITE, nameIndexOffset,
+                        (long) nameIndexCapacity * Integer.BYTES);
+                for (int slot = 0; slot < slotCount; slot++) {
+                    int bucket = readName(names, getField(slot, NAME_OFFSET)).hashCode() & (nameIndexCapacity - 1);
+                    while (nameIndex.getInt(bucket * Integer.BYTES) != 0) {
+                        bucket = (bucket + 1) & (nameIndexCapacity - 1);
+                    }
+                    nameIndex.putInt(bucket * Integer.BYTES, slot + 1);
+                }
+
+                // Mapping the slots in whole chunks may have grown the file beyond the end of the name index
+                channel.truncate(nameIndexOffset + (long) nameIndexCapacity * Integer.BYTES);
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, slotCount)
+                        .putInt(12, nameIndexCapacity).putLong(16, namesOffset).putLong(24, nameIndexOffset);
+                for (MappedByteBuffer chunk : chunks) {
+                    chunk.force();
+                }
+                nameIndex.force();
+                header.force();
+            } finally {
+                channel.close();
+                Files.deleteIfExists(namesPath);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "MappedMemberStore.Writer{path=" + path + ", members=" + slotCount + "}";
+        }
+    }
+
+    /**
+     * @return number of members in the store
+     */
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    /**
+     * Looks up the slot of a member by name
+     *
+     * @param name name of the member
+     * @return slot of the member or {@code NONE} if not exists
+     */
+    public int find(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        int bucket = name.hashCode() & nameIndexMask;
+        int entry;
+        while ((entry = nameIndex.getInt(bucket * Integer.BYTES)) != 0) {
+            if (getName(entry - 1).equals(name)) {
+                return entry - 1;
+            }
+            bucket = (bucket + 1) & nameIndexMask;
+        }
+        return NONE;
+    }
+
+    public int getIndex(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + INDEX);
+    }
+
+    public Gender getGender(int slot) {
+        return GENDERS[slots.getInt(slot * SLOT_SIZE + GENDER)];
+    }
+
+    public int getMother(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + MOTHER);
+    }
+
+    public int getFather(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + FATHER);
+    }
+
+    public int getSpouse(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + SPOUSE);
+    }
+
+    public int getFirstChild(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + FIRST_CHILD);
+    }
+
+    public int getNextSibling(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + NEXT_SIBLING);
+    }
+
+    /**
+     * Decodes the name of a member
+     *
+     * @param slot slot of the member
+     * @return name of the member
+     */
+    public String getName(int slot) {
+        return readName(names, slots.getInt(slot * SLOT_SIZE + NAME_OFFSET));
+    }
+
+    private static String readName(ByteBuffer names, int offset) {
+        byte[] bytes = new byte[names.getInt(offset)];
+        ByteBuffer name = names.duplicate();
+        name.position(offset + Integer.BYTES);
+        name.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
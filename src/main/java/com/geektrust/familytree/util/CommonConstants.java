@@ -13,11 +13,14 @@ public class CommonConstants {
     public static final String CHILD_ADDITION_FAILED = "CHILD_ADDITION_FAILED";
     public static final String CHILD_ADDED = "CHILD_ADDED";
     public static final String NONE = "NONE";
+    public static final String STATISTICS_FORMAT = "Descendants=%d Male=%d Female=%d Married=%d Generations=%d";
 
     /*
      Input commands
      */
     public static final String ADD_CHILD_OPERATION = "ADD_CHILD";
     public static final String GET_RELATIONSHIP_OPERATION = "GET_RELATIONSHIP";
+    public static final String GET_STATISTICS_OPERATION = "GET_STATISTICS";
+    public static final String GET_RELATIONSHIP_REPORT_OPERATION = "GET_RELATIONSHIP_REPORT";
     public static final String INVALID_COMMAND = "INVALID_COMMAND";
 }
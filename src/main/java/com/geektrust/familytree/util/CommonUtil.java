@@ -3,6 +3,7 @@ package com.geektrust.familytree.util;
 import com.geektrust.familytree.bean.FamilyTree;
 import com.geektrust.familytree.bean.Gender;
 import com.geektrust.familytree.bean.Relationship;
+import com.geektrust.familytree.query.RelationshipReport;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -75,6 +76,29 @@ public class CommonUtil {
         return familyTree;
     }
 
+    /**
+     * Returns the relations of a member for a {@code GET_RELATIONSHIP} command. The relationship is either one of the
+     * supported {@link Relationship}s or a relationship expression, which may contain spaces.
+     *
+     * @param familyTree {@link FamilyTree} to query
+     * @param memberName name of the member
+     * @param command    full command line
+     * @return space separated names of relations, {@code NONE} if no relations exist or {@code INVALID_COMMAND} if
+     * the relationship is not valid
+     */
+    private static String getRelationship(FamilyTree familyTree, String memberName, String command) {
+        String relationshipParam = command.split(" ", 3)[2].trim();
+        Relationship relationship = Relationship.get(relationshipParam);
+        if (relationship != null) {
+            return familyTree.getRelationship(memberName, relationship);
+        }
+        try {
+            return familyTree.getRelationship(memberName, relationshipParam);
+        } catch (IllegalArgumentException e) {
+            return CommonConstants.INVALID_COMMAND;
+        }
+    }
+
     /**
      * Process input file
      *
@@ -100,8 +124,16 @@ public class CommonUtil {
                     if (params.length < 3) {
                         resultList.add(CommonConstants.INVALID_COMMAND);
                     } else {
-                        resultList.add(familyTree.getRelationship(params[1], Relationship.get(params[2])));
+                        resultList.add(getRelationship(familyTree, params[1], currentLine));
+                    }
+                } else if (CommonConstants.GET_STATISTICS_OPERATION.equals(params[0])) {
+                    if (params.length < 2) {
+                        resultList.add(CommonConstants.INVALID_COMMAND);
+                    } else {
+                        resultList.add(familyTree.getStatistics(params[1]));
                     }
+                } else if (CommonConstants.GET_RELATIONSHIP_REPORT_OPERATION.equals(params[0])) {
+                    new RelationshipReport(familyTree).write(resultList::add);
                 }
                 currentLine = br.readLine();
             }
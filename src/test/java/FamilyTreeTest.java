@@ -2,19 +2,46 @@ import com.geektrust.familytree.bean.FamilyMember;
 import com.geektrust.familytree.bean.FamilyTree;
 import com.geektrust.familytree.bean.Gender;
 import com.geektrust.familytree.bean.Relationship;
+import com.geektrust.familytree.event.MutationEvent;
+import com.geektrust.familytree.event.MutationSubscription;
+import com.geektrust.familytree.event.MutationType;
+import com.geektrust.familytree.query.CoalescingFamilyTree;
+import com.geektrust.familytree.query.RelationshipExpression;
+import com.geektrust.familytree.query.RelationshipReport;
+import com.geektrust.familytree.store.MappedFamilyTree;
+import com.geektrust.familytree.store.MappedMemberStore;
 import com.geektrust.familytree.util.CommonConstants;
 import com.geektrust.familytree.util.CommonUtil;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class FamilyTreeTest {
     private FamilyTree familyTree;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Initialize the existing family tree before test
      */
@@ -63,6 +90,7 @@ public class FamilyTreeTest {
         Assert.assertEquals("NONE", familyTree.getRelationship("Remus", Relationship.PATERNAL_AUNT));
         Assert.assertEquals("NONE", familyTree.getRelationship("Malfoy", Relationship.SISTER_IN_LAW));
         Assert.assertEquals("Hugo", familyTree.getRelationship("Malfoy", Relationship.BROTHER_IN_LAW));
+        Assert.assertEquals("NONE", familyTree.getRelationship("Victoire", Relationship.SISTER_IN_LAW));
     }
 
     /**
@@ -104,6 +132,22 @@ public class FamilyTreeTest {
         }
     }
 
+    /**
+     * Test processing relationship names and expressions with trailing whitespace from an input file
+     */
+    @Test
+    public void testInputFileWithExpressions() {
+        try {
+            List<String> resultList = CommonUtil.processInput("src/test/resources/sample_input2.txt", familyTree);
+            Assert.assertEquals(3, resultList.size());
+            Assert.assertEquals("Dominique", resultList.get(0));
+            Assert.assertEquals("Molly Lucy Rose Hugo James Albus Lily", resultList.get(1));
+            Assert.assertEquals(CommonConstants.INVALID_COMMAND, resultList.get(2));
+        } catch (IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
     /**
      * Test output when an invalid file path given to process
      */
@@ -112,4 +156,443 @@ public class FamilyTreeTest {
         List<String> resultList = CommonUtil.processInput("src/main/resources/sample_inputx.txt", familyTree);
         Assert.assertNotNull(resultList);
     }
+
+    /**
+     * Test that concurrent identical queries share a single computation and that a mutation is ordered after the
+     * query in-flight when it started
+     */
+    @Test
+    public void testCoalescedQueries() throws Exception {
+        int callers = 16;
+        GatedFamilyTree gatedTree = new GatedFamilyTree();
+        CoalescingFamilyTree coalescingTree = new CoalescingFamilyTree(gatedTree);
+        ExecutorService executor = Executors.newFixedThreadPool(callers + 1);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescingTree.getRelationship("Percy", Relationship.SIBLINGS)));
+            Assert.assertTrue(gatedTree.entered.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> coalescingTree.getRelationship("Percy", Relationship.SIBLINGS)));
+            }
+            awaitRequests(coalescingTree, callers);
+
+            Future<String> mutation = executor.submit(() -> coalescingTree.addChild("Margaret", "Fred", Gender.MALE));
+            try {
+                mutation.get(200, TimeUnit.MILLISECONDS);
+                Assert.fail("Mutation should wait for the in-flight query");
+            } catch (TimeoutException e) {
+                // expected
+            }
+
+            gatedTree.release.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals("Bill", result.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, coalescingTree.getComputationCount());
+            Assert.assertEquals(callers, coalescingTree.getCollapseRatio(), 0.0);
+
+            Assert.assertEquals(CommonConstants.CHILD_ADDED, mutation.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("Bill Fred", coalescingTree.getRelationship("Percy", Relationship.SIBLINGS));
+            Assert.assertEquals(2, coalescingTree.getComputationCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that an {@link Error} thrown while computing a coalesced query reaches every caller and does not block
+     * later mutations
+     */
+    @Test
+    public void testCoalescedQueryFailure() throws Exception {
+        GatedFamilyTree gatedTree = new GatedFamilyTree();
+        gatedTree.failure = new StackOverflowError();
+        CoalescingFamilyTree coalescingTree = new CoalescingFamilyTree(gatedTree);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<String> leader = executor.submit(() -> coalescingTree.getRelationship("Percy",
+                    Relationship.SIBLINGS));
+            Assert.assertTrue(gatedTree.entered.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = executor.submit(() -> coalescingTree.getRelationship("Percy",
+                    Relationship.SIBLINGS));
+            awaitRequests(coalescingTree, 2);
+            gatedTree.release.countDown();
+
+            for (Future<String> result : Arrays.asList(leader, waiter)) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    Assert.fail("Query should fail");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+                }
+            }
+            executor.submit(() -> coalescingTree.addSpouse("Percy", "Audrey", Gender.FEMALE)).get(5,
+                    TimeUnit.SECONDS);
+            Assert.assertEquals("Audrey", gatedTree.getMember("Percy").getSpouse().getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitRequests(CoalescingFamilyTree coalescingTree, int requests) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescingTree.getRequestCount() < requests) {
+            Assert.assertTrue("Callers did not arrive in time", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * A family tree whose first relationship query blocks until it is released
+     */
+    private static class GatedFamilyTree extends FamilyTree {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private Error failure;
+
+        GatedFamilyTree() {
+            super("Arthur", Gender.MALE);
+            addSpouse("Arthur", "Margaret", Gender.FEMALE);
+            addChild("Margaret", "Bill", Gender.MALE);
+            addChild("Margaret", "Percy", Gender.MALE);
+        }
+
+        @Override
+        public String getRelationship(String memberName, Relationship relationship) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return super.getRelationship(memberName, relationship);
+        }
+    }
+
+    /**
+     * Test incrementally maintained descendant statistics against a full walk of the family tree
+     */
+    @Test
+    public void testStatistics() {
+        Assert.assertEquals("Descendants=21 Male=12 Female=9 Married=8 Generations=3",
+                familyTree.getStatistics("Arthur"));
+        Assert.assertEquals(familyTree.getStatistics("Arthur"), familyTree.getStatistics("Margaret"));
+        Assert.assertEquals("Descendants=0 Male=0 Female=0 Married=0 Generations=0",
+                familyTree.getStatistics("Remus"));
+        Assert.assertEquals(CommonConstants.PERSON_NOT_FOUND, familyTree.getStatistics("Jimmy"));
+
+        familyTree.addChild("Rose", "Mark", Gender.MALE);
+        familyTree.addSpouse("Louis", "Jenny", Gender.FEMALE);
+        familyTree.addChild("Jenny", "Timothy", Gender.MALE);
+        familyTree.addSpouse("Dominique", "Oliver", Gender.MALE);
+        familyTree.addChild("Dominique", "Simone", Gender.FEMALE);
+        familyTree.addSpouse("Remus", "Tonks", Gender.FEMALE);
+        familyTree.addChild("Tonks", "Edward", Gender.MALE);
+        verifyStatistics(familyTree.getRoot());
+        Assert.assertEquals(4, familyTree.getRoot().getGenerationDepth());
+    }
+
+    /**
+     * Walks the family tree and compares the statistics of each member with the maintained aggregates
+     *
+     * @param member root of the subtree to verify
+     * @return descendants in the subtree including the given member
+     */
+    private List<FamilyMember> verifyStatistics(FamilyMember member) {
+        FamilyMember mother = Gender.FEMALE.equals(member.getGender()) ? member: member.getSpouse();
+        List<FamilyMember> descendants = new ArrayList<>();
+        int depth = 0;
+        if (mother != null) {
+            for (FamilyMember child : mother.getChildren()) {
+                descendants.addAll(verifyStatistics(child));
+                depth = Math.max(depth, child.getGenerationDepth() + 1);
+            }
+        }
+        for (FamilyMember m : member.getSpouse() != null ? new FamilyMember[]{member, member.getSpouse()}
+                : new FamilyMember[]{member}) {
+            Assert.assertEquals(descendants.size(), m.getDescendantCount());
+            Assert.assertEquals(descendants.stream().filter(d -> Gender.MALE.equals(d.getGender())).count(),
+                    m.getDescendantCount(Gender.MALE));
+            Assert.assertEquals(descendants.stream().filter(d -> d.getSpouse() != null).count(),
+                    m.getMarriedDescendantCount());
+            Assert.assertEquals(depth, m.getGenerationDepth());
+        }
+        descendants.add(member);
+        return descendants;
+    }
+
+    /**
+     * Test batched delivery of mutation events, including a subscriber which does not keep up
+     */
+    @Test
+    public void testMutationSubscription() throws InterruptedException {
+        List<List<MutationEvent>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowBatches = new AtomicInteger();
+        MutationSubscription subscription = familyTree.subscribe(2, batch -> {
+            batches.add(batch);
+            batch.forEach(event -> delivered.countDown());
+        });
+        MutationSubscription slowSubscription = familyTree.subscribe(1, batch -> {
+            slowBatches.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            Assert.assertEquals(CommonConstants.CHILD_ADDED, familyTree.addChild("Rose", "Mark", Gender.MALE));
+            familyTree.addSpouse("Louis", "Jenny", Gender.FEMALE);
+            Assert.assertEquals(CommonConstants.CHILD_ADDED, familyTree.addChild("Jenny", "Timothy", Gender.MALE));
+            Assert.assertEquals(CommonConstants.CHILD_ADDITION_FAILED,
+                    familyTree.addChild("Bill", "Bill Jr", Gender.MALE));
+
+            Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            subscription.close();
+            slowSubscription.close();
+            release.countDown();
+        }
+        // The batch in progress when the slow subscription was closed completes, but no further batch is delivered
+        Thread.sleep(100);
+        Assert.assertEquals(1, slowBatches.get());
+
+        List<MutationEvent> events = batches.stream().flatMap(List::stream).collect(Collectors.toList());
+        Assert.assertTrue(batches.stream().allMatch(batch -> batch.size() <= 2));
+        Assert.assertEquals(3, events.size());
+        for (int i = 1; i < events.size(); i++) {
+            Assert.assertTrue(events.get(i).getSequence() > events.get(i - 1).getSequence());
+        }
+
+        FamilyMember jenny = familyTree.getMember("Jenny");
+        Assert.assertEquals(MutationType.SPOUSE_ADDED, events.get(1).getType());
+        Assert.assertEquals(jenny.getIndex(), events.get(1).getMemberId());
+        Assert.assertEquals(Integer.valueOf(familyTree.getMember("Louis").getIndex()), events.get(1).getSpouseId());
+        Assert.assertNull(events.get(1).getMotherId());
+
+        MutationEvent timothy = events.get(2);
+        Assert.assertEquals(MutationType.CHILD_ADDED, timothy.getType());
+        Assert.assertEquals(Gender.MALE, timothy.getGender());
+        Assert.assertEquals(Integer.valueOf(jenny.getIndex()), timothy.getMotherId());
+        Assert.assertEquals(Integer.valueOf(jenny.getSpouse().getIndex()), timothy.getFatherId());
+    }
+
+    /**
+     * Test that exceptions thrown by a subscriber are passed to its error handler and delivery continues
+     */
+    @Test
+    public void testMutationSubscriptionErrorHandler() throws InterruptedException {
+        List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+        List<MutationEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2);
+        MutationSubscription subscription = familyTree.subscribe(1, batch -> {
+            if (delivered.getCount() == 2) {
+                delivered.countDown();
+                throw new IllegalStateException("Subscriber failure");
+            }
+            events.addAll(batch);
+            delivered.countDown();
+        }, errors::add);
+        try {
+            familyTree.addChild("Rose", "Mark", Gender.MALE);
+            familyTree.addChild("Rose", "Mia", Gender.FEMALE);
+            Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            subscription.close();
+        }
+        Assert.assertEquals(1, errors.size());
+        Assert.assertEquals("Subscriber failure", errors.get(0).getMessage());
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(familyTree.getMember("Mia").getIndex(), events.get(0).getMemberId());
+    }
+
+    /**
+     * Test the parallel relationship report against individual relationship queries
+     */
+    @Test
+    public void testRelationshipReport() {
+        List<String> expected = new ArrayList<>();
+        for (FamilyMember member : familyTree.getMembers()) {
+            for (Relationship relationship : Relationship.values()) {
+                expected.add(member.getName() + " " + relationship.getValue() + " "
+                        + familyTree.getRelationship(member.getName(), relationship));
+            }
+        }
+        Assert.assertEquals(31 * Relationship.values().length, expected.size());
+        Assert.assertEquals("Arthur Son NONE", expected.get(0));
+        Assert.assertEquals("Margaret Son Bill Charlie Percy Ronald", expected.get(Relationship.values().length));
+        Assert.assertTrue(expected.contains("Remus Maternal-Aunt Dominique"));
+
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<String> report = new ArrayList<>();
+                new RelationshipReport(familyTree, pool).write(report::add);
+                Assert.assertEquals(expected, report);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Test relationship queries against a memory-mapped member store
+     */
+    @Test
+    public void testMappedFamilyTree() throws IOException {
+        familyTree.addSpouse("Louis", "Jenny", Gender.FEMALE);
+        familyTree.addSpouse("Charlie", "Imogen", Gender.FEMALE);
+        familyTree.addChild("Jenny", "Timothy", Gender.MALE);
+        familyTree.addChild("Jenny", "Simone", Gender.FEMALE);
+
+        Path path = temporaryFolder.newFile("family.store").toPath();
+        MappedMemberStore.write(familyTree, path);
+        MappedFamilyTree mappedFamilyTree = MappedFamilyTree.open(path);
+
+        List<FamilyMember> members = familyTree.getMembers();
+        Assert.assertEquals(members.size(), mappedFamilyTree.getMemberCount());
+        for (FamilyMember member : members) {
+            for (Relationship relationship : Relationship.values()) {
+                Assert.assertEquals(member.getName() + " " + relationship.getValue(),
+                        familyTree.getRelationship(member.getName(), relationship),
+                        mappedFamilyTree.getRelationship(member.getName(), relationship));
+            }
+        }
+        Assert.assertEquals("Victoire Dominique", mappedFamilyTree.getRelationship("Simone",
+                Relationship.PATERNAL_AUNT));
+        Assert.assertEquals(CommonConstants.PERSON_NOT_FOUND,
+                mappedFamilyTree.getRelationship("Jimmy", Relationship.SIBLINGS));
+        String paternalCousins = "father.siblings.children | father.siblings.spouse.children";
+        for (FamilyMember member : members) {
+            Assert.assertEquals(familyTree.getRelationship(member.getName(), paternalCousins),
+                    mappedFamilyTree.getRelationship(member.getName(), paternalCousins));
+        }
+    }
+
+    /**
+     * Test building a memory-mapped member store by appending members without a family tree
+     */
+    @Test
+    public void testMappedMemberStoreWriter() throws IOException {
+        Path path = temporaryFolder.newFile("appended.store").toPath();
+        try (MappedMemberStore.Writer writer = new MappedMemberStore.Writer(path)) {
+            int none = MappedMemberStore.NONE;
+            int arthur = writer.append(1, "Arthur", Gender.MALE, none, none, none);
+            int margaret = writer.append(2, "Margaret", Gender.FEMALE, none, none, arthur);
+            int bill = writer.append(3, "Bill", Gender.MALE, margaret, arthur, none);
+            writer.append(4, "Ginerva", Gender.FEMALE, margaret, arthur, none);
+            int flora = writer.append(5, "Flora", Gender.FEMALE, none, none, bill);
+            writer.append(6, "Victoire", Gender.FEMALE, flora, bill, none);
+
+            try {
+                writer.append(6, "Louis", Gender.MALE, flora, bill, none);
+                Assert.fail("Members should be appended in index order");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains("index order"));
+            }
+            try {
+                writer.append(7, "Louis", Gender.MALE, 42, bill, none);
+                Assert.fail("Mother should be appended before the child");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains("mother"));
+            }
+        }
+
+        // Header, 6 slots, 6 names and a name index of 16 buckets
+        Assert.assertEquals(32 + 6 * 32 + 6 * 4 + 38 + 16 * 4, Files.size(path));
+        MappedFamilyTree mappedFamilyTree = MappedFamilyTree.open(path);
+        Assert.assertEquals(6, mappedFamilyTree.getMemberCount());
+        Assert.assertEquals("Bill", mappedFamilyTree.getRelationship("Margaret", Relationship.SON));
+        Assert.assertEquals("Ginerva", mappedFamilyTree.getRelationship("Margaret", Relationship.DAUGHTER));
+        Assert.assertEquals("Ginerva", mappedFamilyTree.getRelationship("Bill", Relationship.SIBLINGS));
+        Assert.assertEquals("Ginerva", mappedFamilyTree.getRelationship("Victoire", Relationship.PATERNAL_AUNT));
+        Assert.assertEquals("Ginerva", mappedFamilyTree.getRelationship("Flora", Relationship.SISTER_IN_LAW));
+        Assert.assertEquals("Flora", mappedFamilyTree.getRelationship("Ginerva", Relationship.SISTER_IN_LAW));
+    }
+
+    /**
+     * Test that the member helpers match the relationship expressions they are defined by
+     */
+    @Test
+    public void testMemberRelationshipHelpers() {
+        FamilyMember remus = familyTree.getMember("Remus");
+        Assert.assertEquals("Dominique", names(remus.getMaternalAuntOrUncles(Gender.FEMALE)));
+        Assert.assertEquals("Louis", names(remus.getMaternalAuntOrUncles(Gender.MALE)));
+        Assert.assertTrue(remus.getPaternalAuntOrUncles(Gender.FEMALE).isEmpty());
+        Assert.assertEquals("Bill Charlie Ronald Ginerva", names(familyTree.getMember("Percy").getSiblings()));
+        Assert.assertEquals("Ginerva", names(familyTree.getMember("Percy").getSiblings(Gender.FEMALE)));
+        Assert.assertEquals("Draco", names(familyTree.getMember("Rose").getChildren(Gender.MALE)));
+        Assert.assertTrue(familyTree.getMember("Malfoy").getChildren(Gender.MALE).isEmpty());
+        Assert.assertEquals("Hugo", names(familyTree.getMember("Malfoy").getInLaws(Gender.MALE)));
+        Assert.assertTrue(familyTree.getMember("Victoire").getInLaws(Gender.FEMALE).isEmpty());
+    }
+
+    private static String names(List<FamilyMember> members) {
+        return members.stream().map(FamilyMember::getName).collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Test custom relationship expressions
+     */
+    @Test
+    public void testRelationshipExpressions() {
+        String paternalCousins = "father.siblings.children | father.siblings.spouse.children";
+        Assert.assertEquals("Molly Lucy Rose Hugo James Albus Lily",
+                familyTree.getRelationship("Victoire", paternalCousins));
+        Assert.assertEquals("Bill Charlie Percy Ronald",
+                familyTree.getRelationship("Darcy", "spouse.mother.siblings[male]"));
+        String grandNieces = "siblings.children.children[female] | siblings.children.spouse.children[female]"
+                + " | siblings.spouse.children.children[female] | siblings.spouse.children.spouse.children[female]";
+        Assert.assertEquals("Ginny", familyTree.getRelationship("Ronald", grandNieces));
+        Assert.assertEquals("Ginerva", familyTree.getRelationship("Harry", " Spouse [ Female ] "));
+        Assert.assertEquals(CommonConstants.NONE, familyTree.getRelationship("Remus", paternalCousins));
+        Assert.assertEquals(CommonConstants.PERSON_NOT_FOUND, familyTree.getRelationship("Jimmy", paternalCousins));
+
+        Assert.assertSame(RelationshipExpression.compile(paternalCousins),
+                RelationshipExpression.compile(paternalCousins));
+        Assert.assertSame(RelationshipExpression.compile("spouse[female]"),
+                RelationshipExpression.compile(" Spouse [ Female ] "));
+        for (Relationship relationship : Relationship.values()) {
+            Assert.assertEquals(relationship.getExpression().getExpression(),
+                    RelationshipExpression.compile(relationship.getExpression().getExpression()).getExpression());
+        }
+
+        for (String invalid : new String[]{"", "mother..father", "cousins", "siblings[other]", "children[male"}) {
+            try {
+                RelationshipExpression.compile(invalid);
+                Assert.fail("Expected an invalid expression: " + invalid);
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains("Invalid relationship expression"));
+            }
+        }
+    }
+
+    /**
+     * Test that the cache of compiled relationship expressions is bounded and does not keep invalid expressions
+     */
+    @Test
+    public void testRelationshipExpressionCacheBound() {
+        StringBuilder expression = new StringBuilder("spouse");
+        for (int i = 0; i < 1100; i++) {
+            RelationshipExpression.compile(expression.toString());
+            expression.append(".spouse");
+        }
+        int cacheSize = RelationshipExpression.getCacheSize();
+        Assert.assertTrue(cacheSize <= 1024);
+        for (int i = 0; i < 10; i++) {
+            try {
+                RelationshipExpression.compile("cousins" + i);
+                Assert.fail("Expected an invalid expression");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals(cacheSize, RelationshipExpression.getCacheSize());
+            }
+        }
+        // Built-in relationships keep their compiled expressions regardless of the cache
+        Assert.assertEquals("Flora Audrey Helen", familyTree.getRelationship("Harry", Relationship.SISTER_IN_LAW));
+    }
 }
@@ -0,0 +1,94 @@
+import com.geektrust.familytree.bean.FamilyMember;
+import com.geektrust.familytree.bean.FamilyTree;
+import com.geektrust.familytree.bean.Gender;
+import com.geektrust.familytree.query.RelationshipReport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how the {@link RelationshipReport} scales with the number of cores. This is not run as part of the test
+ * suite. Run it with the number of generations of the synthetic family tree as the optional argument, e.g.
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;commons-lang3 jar&gt; RelationshipReportBenchmark 8
+ * </pre>
+ */
+public class RelationshipReportBenchmark {
+    private static final int CHILDREN_PER_COUPLE = 4;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        FamilyTree familyTree = buildFamilyTree(generations);
+        int memberCount = familyTree.getMembers().size();
+        System.out.println("Members: " + memberCount);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        long baseline = 0;
+        for (int parallelism = 1; parallelism <= cores; parallelism = nextParallelism(parallelism, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                RelationshipReport report = new RelationshipReport(familyTree, pool);
+                for (int i = 0; i < WARMUP_RUNS; i++) {
+                    report.write(line -> { });
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < MEASURED_RUNS; i++) {
+                    report.write(line -> { });
+                }
+                long elapsed = (System.nanoTime() - start) / MEASURED_RUNS;
+                if (parallelism == 1) {
+                    baseline = elapsed;
+                }
+                System.out.printf("Parallelism %2d: %8.2f ms  speedup %.2fx%n", parallelism, elapsed / 1e6,
+                        (double) baseline / elapsed);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Doubles the parallelism, making sure the number of cores itself is measured last
+     */
+    private static int nextParallelism(int parallelism, int cores) {
+        if (parallelism < cores && parallelism * 2 > cores) {
+            return cores;
+        }
+        return parallelism * 2;
+    }
+
+    /**
+     * Builds a family tree where every couple has {@code CHILDREN_PER_COUPLE} children. Members are attached directly
+     * to their mothers, since looking each mother up by name would make building the tree quadratic.
+     *
+     * @param generations number of generations below the root
+     * @return {@link FamilyTree}
+     */
+    private static FamilyTree buildFamilyTree(int generations) {
+        FamilyTree familyTree = new FamilyTree("Root", Gender.MALE);
+        familyTree.addSpouse("Root", "RootSpouse", Gender.FEMALE);
+        Deque<FamilyMember> mothers = new ArrayDeque<>();
+        mothers.add(familyTree.getRoot().getSpouse());
+        int id = 0;
+        for (int generation = 0; generation < generations; generation++) {
+            Deque<FamilyMember> next = new ArrayDeque<>();
+            for (FamilyMember mother : mothers) {
+                for (int i = 0; i < CHILDREN_PER_COUPLE; i++) {
+                    Gender gender = i % 2 == 0 ? Gender.FEMALE : Gender.MALE;
+                    FamilyMember child = new FamilyMember("M" + id++, gender, mother, mother.getSpouse());
+                    FamilyMember spouse = new FamilyMember("M" + id++, Gender.FEMALE.equals(gender) ? Gender.MALE
+                            : Gender.FEMALE, null, null);
+                    child.setSpouse(spouse);
+                    spouse.setSpouse(child);
+                    mother.addChild(child);
+                    next.add(Gender.FEMALE.equals(gender) ? child : spouse);
+                }
+            }
+            mothers = next;
+        }
+        return familyTree;
+    }
+}